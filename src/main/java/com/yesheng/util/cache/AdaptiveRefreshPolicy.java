@@ -0,0 +1,191 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按key自适应的刷新间隔
+ * <p>缓存按{@code minRefreshSec}触发刷新，刷新时先判断该key是否到了自己的刷新时间，没到则直接沿用旧值，不访问后端。
+ * 刷新后新值与旧值相同（equals或者指定的内容摘要相同）时，该key的间隔翻倍，最长为{@code maxRefreshSec}；
+ * 不同时间隔恢复为{@code minRefreshSec}。值不变的key回源次数随之减少，经常变化的key仍按最短间隔刷新。</p>
+ * <p>值不变的key突然变化时，最长要等{@code maxRefreshSec}才能刷新到。一个策略只能用于一个缓存，
+ * 配合{@link LocalCacheUtil#createAdaptive(Function, long, long, AdaptiveRefreshPolicy)}使用</p>
+ */
+public class AdaptiveRefreshPolicy<V> {
+
+    private final long minRefreshNanos;
+
+    private final long maxRefreshNanos;
+
+    private final Function<? super V, ?> fingerprint;
+
+    private final Ticker ticker;
+
+    private final Map<Object, KeyState> states = new ConcurrentHashMap<>();
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final LongAdder changedCount = new LongAdder();
+
+    private final LongAdder unchangedCount = new LongAdder();
+
+    public AdaptiveRefreshPolicy(long minRefreshSec, long maxRefreshSec) {
+        this(minRefreshSec, maxRefreshSec, null);
+    }
+
+    /**
+     * @param fingerprint 值的内容摘要，例如版本号或者hash，为null时直接用equals比较新旧值
+     */
+    public AdaptiveRefreshPolicy(long minRefreshSec, long maxRefreshSec, Function<? super V, ?> fingerprint) {
+        this(minRefreshSec, maxRefreshSec, fingerprint, Ticker.systemTicker());
+    }
+
+    AdaptiveRefreshPolicy(long minRefreshSec, long maxRefreshSec, Function<? super V, ?> fingerprint, Ticker ticker) {
+        Preconditions.checkArgument(minRefreshSec > 0, "minRefreshSec must be positive");
+        Preconditions.checkArgument(maxRefreshSec >= minRefreshSec, "maxRefreshSec must not be less than minRefreshSec");
+        this.minRefreshNanos = TimeUnit.SECONDS.toNanos(minRefreshSec);
+        this.maxRefreshNanos = TimeUnit.SECONDS.toNanos(maxRefreshSec);
+        this.fingerprint = fingerprint;
+        this.ticker = ticker;
+    }
+
+    long getMinRefreshSec() {
+        return TimeUnit.NANOSECONDS.toSeconds(minRefreshNanos);
+    }
+
+    long getMaxRefreshSec() {
+        return TimeUnit.NANOSECONDS.toSeconds(maxRefreshNanos);
+    }
+
+    /**
+     * 首次加载后按最短间隔刷新
+     */
+    void onLoaded(Object key) {
+        states.put(key, new KeyState(minRefreshNanos, ticker.read() + minRefreshNanos));
+    }
+
+    /**
+     * 是否到了该key的刷新时间，没到时记为一次节省的刷新
+     * <p>通过put写入、没有经过load的key没有记录，按最短间隔建立记录并立即刷新</p>
+     */
+    boolean shouldRefresh(Object key) {
+        KeyState state = states.get(key);
+        if (state == null) {
+            states.putIfAbsent(key, new KeyState(minRefreshNanos, ticker.read()));
+            return true;
+        }
+        if (ticker.read() - state.nextRefreshNanos >= 0) {
+            return true;
+        }
+        skippedCount.increment();
+        return false;
+    }
+
+    /**
+     * 根据新旧值是否相同调整该key的刷新间隔
+     * <p>记录在刷新期间被移除通知删掉时，说明该key已经被淘汰或者失效，不再重新建立记录</p>
+     *
+     * @param newValue 为null表示没有取到新值，保持原来的间隔
+     */
+    void onRefreshed(Object key, V oldValue, V newValue) {
+        refreshCount.increment();
+        final boolean refreshed = newValue != null;
+        final boolean same = refreshed && isSame(oldValue, newValue);
+        if (refreshed) {
+            if (same) {
+                unchangedCount.increment();
+            } else {
+                changedCount.increment();
+            }
+        }
+        states.computeIfPresent(key, (k, state) -> {
+            long interval = state.intervalNanos;
+            if (refreshed) {
+                interval = same ? Math.min(interval * 2, maxRefreshNanos) : minRefreshNanos;
+            }
+            return new KeyState(interval, ticker.read() + interval);
+        });
+    }
+
+    void onRemoved(Object key) {
+        states.remove(key);
+    }
+
+    /**
+     * 当前有刷新记录的key个数
+     */
+    int getTrackedKeyCount() {
+        return states.size();
+    }
+
+    private boolean isSame(V oldValue, V newValue) {
+        if (fingerprint == null) {
+            return Objects.equal(oldValue, newValue);
+        }
+        return Objects.equal(fingerprint.apply(oldValue), fingerprint.apply(newValue));
+    }
+
+    /**
+     * 实际访问后端的刷新次数
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    /**
+     * 因为未到该key的刷新时间而省掉的刷新次数
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    public long getChangedCount() {
+        return changedCount.sum();
+    }
+
+    public long getUnchangedCount() {
+        return unchangedCount.sum();
+    }
+
+    /**
+     * 省掉的刷新占全部刷新触发的比例
+     */
+    public double getSavedRatio() {
+        long skipped = skippedCount.sum();
+        long total = skipped + refreshCount.sum();
+        return total == 0 ? 0 : (double) skipped / total;
+    }
+
+    /**
+     * 该key当前的刷新间隔，没有记录时返回最短间隔
+     */
+    public long getRefreshIntervalSec(Object key) {
+        KeyState state = states.get(key);
+        return TimeUnit.NANOSECONDS.toSeconds(state == null ? minRefreshNanos : state.intervalNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveRefreshPolicy{refreshes=%d, skipped=%d, changed=%d, unchanged=%d, savedRatio=%.4f}",
+                getRefreshCount(), getSkippedCount(), getChangedCount(), getUnchangedCount(), getSavedRatio());
+    }
+
+    private static final class KeyState {
+        private final long intervalNanos;
+        private final long nextRefreshNanos;
+
+        private KeyState(long intervalNanos, long nextRefreshNanos) {
+            this.intervalNanos = intervalNanos;
+            this.nextRefreshNanos = nextRefreshNanos;
+        }
+    }
+}
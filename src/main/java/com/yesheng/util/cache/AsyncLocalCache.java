@@ -0,0 +1,103 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 异步加载的本地缓存
+ * <p>缓存的值为{@link CompletableFuture}，未命中时在executor中加载，调用线程不会被阻塞；
+ * 同一个key并发的未命中共用同一个future。适合在非阻塞的请求处理线程中使用。</p>
+ * <p>刷新时如果加载函数返回null，则保留原来的值；首次加载返回null时future以{@link CacheLoader.InvalidCacheLoadException}结束，
+ * 加载函数抛出异常时future以该异常结束，两种情况都会从缓存中移除，下次访问会重新加载</p>
+ */
+public class AsyncLocalCache<K, V> {
+
+    private final LoadingCache<K, CompletableFuture<V>> cache;
+
+    AsyncLocalCache(CacheBuilder<Object, Object> builder, Function<K, V> function, Executor executor) {
+        this.cache = builder.build(createCacheLoader(function, executor));
+    }
+
+    /**
+     * 获取key对应的值，未命中时在executor中异步加载
+     */
+    public CompletableFuture<V> get(K key) {
+        CompletableFuture<V> future = cache.getUnchecked(key);
+        if (future.isCompletedExceptionally()) {
+            // 失败的future在存入缓存前就已结束时，whenComplete中的移除不会生效，这里补偿一次
+            cache.asMap().remove(key, future);
+            future = cache.getUnchecked(key);
+        }
+        return future;
+    }
+
+    /**
+     * 获取已缓存的值，不会触发加载；已失败的future视为不存在，返回null
+     */
+    public CompletableFuture<V> getIfPresent(K key) {
+        CompletableFuture<V> future = cache.getIfPresent(key);
+        if (future != null && future.isCompletedExceptionally()) {
+            cache.asMap().remove(key, future);
+            return null;
+        }
+        return future;
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, CompletableFuture.completedFuture(Preconditions.checkNotNull(value)));
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private CacheLoader<K, CompletableFuture<V>> createCacheLoader(final Function<K, V> function, final Executor executor) {
+        return CacheLoader.asyncReloading(new CacheLoader<K, CompletableFuture<V>>() {
+            @Override
+            public CompletableFuture<V> load(final K key) {
+                final CompletableFuture<V> future = CompletableFuture.supplyAsync(() -> {
+                    V value = function.apply(key);
+                    if (value == null) {
+                        throw new InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
+                    }
+                    return value;
+                }, executor);
+                future.whenComplete((value, e) -> {
+                    if (e != null) {
+                        cache.asMap().remove(key, future);
+                    }
+                });
+                return future;
+            }
+
+            /**
+             * 如果返回了空值，则不更新本地缓存；上一次加载还没有结束时不重复加载
+             */
+            @Override
+            public ListenableFuture<CompletableFuture<V>> reload(final K key, final CompletableFuture<V> oldValue) {
+                Preconditions.checkNotNull(key);
+                Preconditions.checkNotNull(oldValue);
+                if (!oldValue.isDone()) {
+                    return Futures.immediateFuture(oldValue);
+                }
+                V newValue = function.apply(key);
+                if (newValue == null) {
+                    return Futures.immediateFuture(oldValue);
+                }
+                return Futures.immediateFuture(CompletableFuture.completedFuture(newValue));
+            }
+        }, executor);
+    }
+}
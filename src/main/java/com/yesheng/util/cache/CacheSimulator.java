@@ -0,0 +1,325 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地缓存参数模拟器
+ * <p>用模拟时钟把{@link Workload}回放到与{@link LocalCacheUtil#create}相同配置的缓存上，不需要真实的后端服务，
+ * 用来估算maxSize、refreshSec、expireSec取不同值时的命中率、回源QPS、同时执行的刷新数、刷新排队深度和内存占用。</p>
+ * <p>命令行用法：
+ * <pre>
+ * java com.yesheng.util.cache.CacheSimulator &lt;workload&gt; &lt;qps&gt; &lt;refreshSec&gt; &lt;expireSec&gt; &lt;maxSize[,maxSize...]&gt;
+ * </pre>
+ * workload的格式见{@link Workload#parse(String)}，多个maxSize时输出命中率随容量变化的曲线（CSV格式）</p>
+ */
+public class CacheSimulator {
+
+    private static final long DEFAULT_BACKEND_LATENCY_MILLIS = 20;
+
+    private static final long DEFAULT_BYTES_PER_ENTRY = 256;
+
+    private final Workload workload;
+
+    private final double qps;
+
+    private long backendLatencyMillis = DEFAULT_BACKEND_LATENCY_MILLIS;
+
+    private long bytesPerEntry = DEFAULT_BYTES_PER_ENTRY;
+
+    private int refreshThreads = LocalCacheUtil.DEFAULT_THREADS;
+
+    /**
+     * @param workload 需要回放的负载
+     * @param qps      访问速率，每次访问模拟时钟前进 1/qps 秒
+     */
+    public CacheSimulator(Workload workload, double qps) {
+        Preconditions.checkArgument(qps > 0, "qps must be positive");
+        this.workload = Preconditions.checkNotNull(workload);
+        this.qps = qps;
+    }
+
+    /**
+     * 单次回源的耗时，用于估算同时执行的刷新数和刷新排队深度
+     */
+    public CacheSimulator backendLatencyMillis(long backendLatencyMillis) {
+        this.backendLatencyMillis = backendLatencyMillis;
+        return this;
+    }
+
+    /**
+     * 刷新线程池的线程数，默认与{@link LocalCacheUtil#getDefaultExecutor()}相同，同时执行的刷新超过该值的部分计为排队
+     */
+    public CacheSimulator refreshThreads(int refreshThreads) {
+        Preconditions.checkArgument(refreshThreads > 0, "refreshThreads must be positive");
+        this.refreshThreads = refreshThreads;
+        return this;
+    }
+
+    /**
+     * 单个缓存条目的估算大小（key、value以及Guava缓存自身的开销），用于估算内存占用
+     */
+    public CacheSimulator bytesPerEntry(long bytesPerEntry) {
+        this.bytesPerEntry = bytesPerEntry;
+        return this;
+    }
+
+    /**
+     * 按给定配置回放一次负载
+     *
+     * @param maxSize 缓存容量，小于等于0表示不限制
+     */
+    public Result run(long maxSize, long refreshSec, long expireSec) {
+        final SimulatedTicker ticker = new SimulatedTicker();
+        final long[] backendCalls = new long[1];
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .recordStats()
+                .refreshAfterWrite(refreshSec, TimeUnit.SECONDS)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS);
+        if (maxSize > 0) {
+            builder.maximumSize(maxSize);
+        }
+        // 刷新在调用线程中同步执行，回源在模拟时间中不占用时长
+        LoadingCache<Object, Object> cache = builder.build(LocalCacheUtil.createCacheLoader(new Function<Object, Object>() {
+            @Override
+            public Object apply(Object key) {
+                backendCalls[0]++;
+                return key;
+            }
+        }, MoreExecutors.directExecutor()));
+
+        long stepNanos = (long) (TimeUnit.SECONDS.toNanos(1) / qps);
+        long accesses = 0;
+        long peakSize = 0;
+        long currentSecond = 0;
+        long refreshesInSecond = 0;
+        long peakRefreshesPerSecond = 0;
+        for (Object key : workload) {
+            long loadsBefore = backendCalls[0];
+            long missesBefore = cache.stats().missCount();
+            cache.getUnchecked(key);
+            refreshesInSecond += (backendCalls[0] - loadsBefore) - (cache.stats().missCount() - missesBefore);
+            accesses++;
+            peakSize = Math.max(peakSize, cache.size());
+            ticker.advance(stepNanos);
+            long second = TimeUnit.NANOSECONDS.toSeconds(ticker.read());
+            if (second != currentSecond) {
+                peakRefreshesPerSecond = Math.max(peakRefreshesPerSecond, refreshesInSecond);
+                refreshesInSecond = 0;
+                currentSecond = second;
+            }
+        }
+        peakRefreshesPerSecond = Math.max(peakRefreshesPerSecond, refreshesInSecond);
+
+        CacheStats stats = cache.stats();
+        double seconds = Math.max(ticker.read() / 1e9, 1e-9);
+        long refreshes = backendCalls[0] - stats.missCount();
+        double latencySec = backendLatencyMillis / 1e3;
+        double averageInFlight = refreshes / seconds * latencySec;
+        double peakInFlight = peakRefreshesPerSecond * latencySec;
+        return new Result(maxSize, refreshSec, expireSec, accesses, seconds,
+                accesses == 0 ? 0 : stats.hitRate(),
+                backendCalls[0] / seconds,
+                refreshes / seconds,
+                averageInFlight,
+                peakInFlight,
+                Math.max(0, averageInFlight - refreshThreads),
+                Math.max(0, peakInFlight - refreshThreads),
+                peakSize,
+                peakSize * bytesPerEntry);
+    }
+
+    /**
+     * 固定刷新、过期时间，依次回放不同的容量，得到命中率随容量变化的曲线
+     */
+    public List<Result> sweepMaxSize(long refreshSec, long expireSec, long... maxSizes) {
+        List<Result> results = new ArrayList<>(maxSizes.length);
+        for (long maxSize : maxSizes) {
+            results.add(run(maxSize, refreshSec, expireSec));
+        }
+        return results;
+    }
+
+    /**
+     * 固定容量、过期时间，依次回放不同的刷新间隔，观察回源QPS的变化
+     */
+    public List<Result> sweepRefreshSec(long maxSize, long expireSec, long... refreshSecs) {
+        List<Result> results = new ArrayList<>(refreshSecs.length);
+        for (long refreshSec : refreshSecs) {
+            results.add(run(maxSize, refreshSec, expireSec));
+        }
+        return results;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            System.err.println("usage: CacheSimulator <trace-file|zipf:keySpace:exponent:accesses|scan:accesses|loop:loopSize:accesses>"
+                    + " <qps> <refreshSec> <expireSec> <maxSize[,maxSize...]>");
+            System.exit(1);
+        }
+        CacheSimulator simulator = new CacheSimulator(Workload.parse(args[0]), Double.parseDouble(args[1]));
+        long refreshSec = Long.parseLong(args[2]);
+        long expireSec = Long.parseLong(args[3]);
+        String[] sizes = args[4].split(",");
+        long[] maxSizes = new long[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            maxSizes[i] = Long.parseLong(sizes[i].trim());
+        }
+        System.out.println(Result.CSV_HEADER);
+        for (Result result : simulator.sweepMaxSize(refreshSec, expireSec, maxSizes)) {
+            System.out.println(result.toCsv());
+        }
+    }
+
+    /**
+     * 单次回放的结果
+     */
+    public static final class Result {
+
+        public static final String CSV_HEADER = "maxSize,refreshSec,expireSec,accesses,simulatedSec,hitRatio,"
+                + "backendQps,refreshQps,avgRefreshesInFlight,peakRefreshesInFlight,avgRefreshQueueDepth,peakRefreshQueueDepth,"
+                + "peakEntries,estimatedBytes";
+
+        private final long maxSize;
+        private final long refreshSec;
+        private final long expireSec;
+        private final long accesses;
+        private final double simulatedSeconds;
+        private final double hitRatio;
+        private final double backendQps;
+        private final double refreshQps;
+        private final double averageRefreshesInFlight;
+        private final double peakRefreshesInFlight;
+        private final double averageRefreshQueueDepth;
+        private final double peakRefreshQueueDepth;
+        private final long peakEntries;
+        private final long estimatedBytes;
+
+        private Result(long maxSize, long refreshSec, long expireSec, long accesses, double simulatedSeconds, double hitRatio,
+                       double backendQps, double refreshQps, double averageRefreshesInFlight, double peakRefreshesInFlight,
+                       double averageRefreshQueueDepth, double peakRefreshQueueDepth, long peakEntries, long estimatedBytes) {
+            this.maxSize = maxSize;
+            this.refreshSec = refreshSec;
+            this.expireSec = expireSec;
+            this.accesses = accesses;
+            this.simulatedSeconds = simulatedSeconds;
+            this.hitRatio = hitRatio;
+            this.backendQps = backendQps;
+            this.refreshQps = refreshQps;
+            this.averageRefreshesInFlight = averageRefreshesInFlight;
+            this.peakRefreshesInFlight = peakRefreshesInFlight;
+            this.averageRefreshQueueDepth = averageRefreshQueueDepth;
+            this.peakRefreshQueueDepth = peakRefreshQueueDepth;
+            this.peakEntries = peakEntries;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public long getRefreshSec() {
+            return refreshSec;
+        }
+
+        public long getExpireSec() {
+            return expireSec;
+        }
+
+        public long getAccesses() {
+            return accesses;
+        }
+
+        public double getSimulatedSeconds() {
+            return simulatedSeconds;
+        }
+
+        public double getHitRatio() {
+            return hitRatio;
+        }
+
+        /**
+         * 未命中加载与刷新的回源总QPS
+         */
+        public double getBackendQps() {
+            return backendQps;
+        }
+
+        public double getRefreshQps() {
+            return refreshQps;
+        }
+
+        /**
+         * 平均同时需要执行的刷新数，即刷新QPS乘以回源耗时
+         */
+        public double getAverageRefreshesInFlight() {
+            return averageRefreshesInFlight;
+        }
+
+        /**
+         * 刷新最多的一秒内同时需要执行的刷新数
+         */
+        public double getPeakRefreshesInFlight() {
+            return peakRefreshesInFlight;
+        }
+
+        /**
+         * 平均排队等待刷新线程的刷新数，即同时需要执行的刷新数超过刷新线程数的部分
+         */
+        public double getAverageRefreshQueueDepth() {
+            return averageRefreshQueueDepth;
+        }
+
+        /**
+         * 刷新最多的一秒内排队等待刷新线程的刷新数，大于0时说明刷新线程不够
+         */
+        public double getPeakRefreshQueueDepth() {
+            return peakRefreshQueueDepth;
+        }
+
+        public long getPeakEntries() {
+            return peakEntries;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public String toCsv() {
+            return String.format("%d,%d,%d,%d,%.1f,%.4f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%d,%d", maxSize, refreshSec, expireSec,
+                    accesses, simulatedSeconds, hitRatio, backendQps, refreshQps, averageRefreshesInFlight, peakRefreshesInFlight,
+                    averageRefreshQueueDepth, peakRefreshQueueDepth, peakEntries, estimatedBytes);
+        }
+
+        @Override
+        public String toString() {
+            return CSV_HEADER + "\n" + toCsv();
+        }
+    }
+
+    /**
+     * 模拟时钟，每次访问由回放循环推进
+     */
+    private static final class SimulatedTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        private void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
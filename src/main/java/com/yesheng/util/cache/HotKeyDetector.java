@@ -0,0 +1,310 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点key探测器
+ * <p>基于count-min sketch统计key的访问频次，并维护访问最多的topK个key及其加载、刷新耗时。
+ * sketch的大小在创建时固定，不随key的数量增长；每累计一定次数的访问会将计数减半，使统计偏向近期流量。</p>
+ * <p>为了避免热点key的并发访问都去竞争同一组计数器，默认只按1/{@value #DEFAULT_SAMPLE_RATE}的比例抽样记录，
+ * 频次按抽样比例放大后返回</p>
+ * <p>一个探测器只应该绑定一个缓存，配合{@link LocalCacheUtil#create(com.google.common.base.Function, long, long, long, java.util.concurrent.Executor, HotKeyDetector)}使用</p>
+ */
+public class HotKeyDetector<K> {
+
+    private static final int DEFAULT_TOP_K = 16;
+
+    private static final int DEFAULT_WIDTH = 1 << 12;
+
+    private static final int DEFAULT_SAMPLE_RATE = 8;
+
+    /**
+     * 每记录多少次检查一次是否需要减半，避免每次都对计数求和
+     */
+    private static final int RESET_CHECK_INTERVAL = 64;
+
+    private static final long[] SEEDS = {0x97cb3127L, 0xb4b82e9dL, 0xc2b2ae35L, 0x27d4eb2fL};
+
+    private static final int DEPTH = SEEDS.length;
+
+    private final int topK;
+
+    private final int width;
+
+    private final int mask;
+
+    private final int sampleMask;
+
+    private final int sampleShift;
+
+    /**
+     * 累计访问达到该值后计数减半
+     */
+    private final int sampleSize;
+
+    private final AtomicLongArray table;
+
+    private final LongAdder additions = new LongAdder();
+
+    private final Map<K, Candidate<K>> candidates = new ConcurrentHashMap<>();
+
+    private volatile long minFrequency;
+
+    public HotKeyDetector() {
+        this(DEFAULT_TOP_K, DEFAULT_WIDTH, DEFAULT_SAMPLE_RATE);
+    }
+
+    public HotKeyDetector(int topK) {
+        this(topK, DEFAULT_WIDTH, DEFAULT_SAMPLE_RATE);
+    }
+
+    public HotKeyDetector(int topK, int width) {
+        this(topK, width, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param topK       需要跟踪的热点key个数
+     * @param width      sketch每行的计数器个数，会向上取整为2的幂，占用内存约为 width * 4 * 8 字节
+     * @param sampleRate 每多少次访问抽样记录一次，会向上取整为2的幂，为1时记录全部访问
+     */
+    public HotKeyDetector(int topK, int width, int sampleRate) {
+        Preconditions.checkArgument(topK > 0, "topK must be positive");
+        Preconditions.checkArgument(width > 0 && width <= 1 << 24, "width must be in (0, 2^24]");
+        Preconditions.checkArgument(sampleRate > 0 && sampleRate <= 1 << 10, "sampleRate must be in (0, 2^10]");
+        this.topK = topK;
+        this.width = width <= 2 ? 2 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        int rate = sampleRate == 1 ? 1 : Integer.highestOneBit(sampleRate - 1) << 1;
+        this.sampleMask = rate - 1;
+        this.sampleShift = Integer.numberOfTrailingZeros(rate);
+        this.sampleSize = this.width * 10;
+        this.table = new AtomicLongArray(DEPTH * this.width);
+    }
+
+    /**
+     * 记录一次访问，按抽样比例只有部分访问会更新计数
+     */
+    public void record(K key) {
+        if (key == null) {
+            return;
+        }
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+            return;
+        }
+        int hash = spread(key.hashCode());
+        long frequency = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table.incrementAndGet(indexOf(hash, i)));
+        }
+        Candidate<K> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.frequency = frequency;
+        } else if (candidates.size() < topK || frequency > minFrequency) {
+            admit(key, frequency);
+        }
+        additions.increment();
+        if (ThreadLocalRandom.current().nextInt(RESET_CHECK_INTERVAL) == 0 && additions.sum() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 估算key的访问频次，已按抽样比例放大
+     */
+    public long frequency(K key) {
+        if (key == null) {
+            return 0;
+        }
+        int hash = spread(key.hashCode());
+        long frequency = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table.get(indexOf(hash, i)));
+        }
+        return frequency << sampleShift;
+    }
+
+    /**
+     * 记录一次缓存未命中时的加载耗时，只有热点key会被统计
+     */
+    public void recordLoad(K key, long nanos) {
+        Candidate<K> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.loadCount.increment();
+            candidate.loadNanos.add(nanos);
+        }
+    }
+
+    /**
+     * 记录一次异步刷新的耗时，只有热点key会被统计
+     */
+    public void recordRefresh(K key, long nanos) {
+        Candidate<K> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.refreshCount.increment();
+            candidate.refreshNanos.add(nanos);
+        }
+    }
+
+    /**
+     * 是否为当前的热点key
+     */
+    public boolean isHot(K key) {
+        return key != null && candidates.containsKey(key);
+    }
+
+    /**
+     * 当前的热点key，按访问频次从高到低排列
+     */
+    public List<HotKey<K>> topKeys() {
+        List<HotKey<K>> result = new ArrayList<>(candidates.size());
+        for (Candidate<K> candidate : candidates.values()) {
+            result.add(candidate.snapshot(sampleShift));
+        }
+        result.sort(Comparator.comparingLong(HotKey<K>::getFrequency).reversed());
+        return Collections.unmodifiableList(result);
+    }
+
+    private synchronized void admit(K key, long frequency) {
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        if (candidates.size() >= topK) {
+            Candidate<K> victim = null;
+            for (Candidate<K> candidate : candidates.values()) {
+                if (victim == null || candidate.frequency < victim.frequency) {
+                    victim = candidate;
+                }
+            }
+            if (victim == null || frequency <= victim.frequency) {
+                minFrequency = victim == null ? 0 : victim.frequency;
+                return;
+            }
+            candidates.remove(victim.key);
+        }
+        candidates.put(key, new Candidate<>(key, frequency));
+        if (candidates.size() >= topK) {
+            long min = Long.MAX_VALUE;
+            for (Candidate<K> candidate : candidates.values()) {
+                min = Math.min(min, candidate.frequency);
+            }
+            minFrequency = min;
+        }
+    }
+
+    /**
+     * 计数减半，让长时间不再访问的key逐渐被新的热点替换
+     */
+    private synchronized void reset() {
+        if (additions.sum() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> 1);
+        }
+        for (Candidate<K> candidate : candidates.values()) {
+            candidate.frequency >>>= 1;
+        }
+        minFrequency >>>= 1;
+        additions.reset();
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * width + ((int) h & mask);
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+    private static final class Candidate<K> {
+        private final K key;
+        private volatile long frequency;
+        private final LongAdder loadCount = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+        private final LongAdder refreshCount = new LongAdder();
+        private final LongAdder refreshNanos = new LongAdder();
+
+        private Candidate(K key, long frequency) {
+            this.key = key;
+            this.frequency = frequency;
+        }
+
+        private HotKey<K> snapshot(int sampleShift) {
+            return new HotKey<>(key, frequency << sampleShift, loadCount.sum(), loadNanos.sum(), refreshCount.sum(), refreshNanos.sum());
+        }
+    }
+
+    /**
+     * 热点key的统计快照
+     */
+    public static final class HotKey<K> {
+        private final K key;
+        private final long frequency;
+        private final long loadCount;
+        private final long loadNanos;
+        private final long refreshCount;
+        private final long refreshNanos;
+
+        private HotKey(K key, long frequency, long loadCount, long loadNanos, long refreshCount, long refreshNanos) {
+            this.key = key;
+            this.frequency = frequency;
+            this.loadCount = loadCount;
+            this.loadNanos = loadNanos;
+            this.refreshCount = refreshCount;
+            this.refreshNanos = refreshNanos;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * 估算的近期访问次数
+         */
+        public long getFrequency() {
+            return frequency;
+        }
+
+        /**
+         * 成为热点key之后的未命中加载次数
+         */
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public double getAverageLoadMillis() {
+            return loadCount == 0 ? 0 : loadNanos / 1e6 / loadCount;
+        }
+
+        /**
+         * 成为热点key之后的刷新次数
+         */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        public double getAverageRefreshMillis() {
+            return refreshCount == 0 ? 0 : refreshNanos / 1e6 / refreshCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{frequency=%d, loads=%d, avgLoadMs=%.2f, refreshes=%d, avgRefreshMs=%.2f}",
+                    key, frequency, loadCount, getAverageLoadMillis(), refreshCount, getAverageRefreshMillis());
+        }
+    }
+}
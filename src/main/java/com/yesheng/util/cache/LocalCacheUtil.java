@@ -2,14 +2,27 @@ package com.yesheng.util.cache;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.ForwardingLoadingCache;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,10 +33,16 @@ import java.util.concurrent.TimeUnit;
 public class LocalCacheUtil {
 
 
-    private final static int DEFAULT_THREADS = 8;
+    final static int DEFAULT_THREADS = 8;
 
     private static final Executor DEFAULT_EXECUTOR = Executors.newFixedThreadPool(DEFAULT_THREADS);
 
+    /**
+     * 全量快照缓存的定时触发线程，只负责触发，加载在executor中执行
+     */
+    private static final ScheduledExecutorService SNAPSHOT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("local-cache-snapshot-%d").setDaemon(true).build());
+
 
     /**
      * 创建本地缓存
@@ -67,11 +86,169 @@ public class LocalCacheUtil {
                 .build(createCacheLoader(function, executor));
     }
 
-    private static <K, V> CacheLoader<K, V> createCacheLoader(final Function<K, V> function, Executor executor) {
+    /**
+     * 创建带热点key探测的本地缓存
+     * <p>通过get、getUnchecked、getAll、apply的访问，以及getIfPresent命中的访问会记录到{@param detector}中，
+     * 可通过{@link HotKeyDetector#topKeys()}查看访问最多的key及其加载、刷新耗时；通过asMap()的访问不会记录</p>
+     */
+    public static <K, V> LoadingCache<K, V> create(Function<K, V> function, long maxSize, long refreshSec, long expireSec, Executor executor,
+                                                   final HotKeyDetector<K> detector) {
+        Preconditions.checkNotNull(detector);
+        final LoadingCache<K, V> cache = CacheBuilder.newBuilder()
+                .refreshAfterWrite(refreshSec, TimeUnit.SECONDS)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .build(createCacheLoader(function, executor, detector));
+        return new ForwardingLoadingCache.SimpleForwardingLoadingCache<K, V>(cache) {
+            @Override
+            public V get(K key) throws ExecutionException {
+                detector.record(key);
+                return super.get(key);
+            }
+
+            @Override
+            public V getUnchecked(K key) {
+                detector.record(key);
+                return super.getUnchecked(key);
+            }
+
+            @Override
+            public ImmutableMap<K, V> getAll(Iterable<? extends K> keys) throws ExecutionException {
+                for (K key : keys) {
+                    detector.record(key);
+                }
+                return super.getAll(keys);
+            }
+
+            @Override
+            public V apply(K key) {
+                return getUnchecked(key);
+            }
+
+            /**
+             * 只记录命中的访问，未命中的key可能不是K类型
+             */
+            @Override
+            @SuppressWarnings("unchecked")
+            public V getIfPresent(Object key) {
+                V value = super.getIfPresent(key);
+                if (value != null) {
+                    detector.record((K) key);
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * 创建异步加载的本地缓存，未命中和刷新都在默认线程池中执行，不阻塞调用线程
+     */
+    public static <K, V> AsyncLocalCache<K, V> createAsync(Function<K, V> function, long refreshSec, long expireSec) {
+        return createAsync(function, refreshSec, expireSec, getDefaultExecutor());
+    }
+
+    /**
+     * 使用传入的线程池创建异步加载的本地缓存
+     */
+    public static <K, V> AsyncLocalCache<K, V> createAsync(Function<K, V> function, long refreshSec, long expireSec, Executor executor) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .refreshAfterWrite(refreshSec, TimeUnit.SECONDS)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS);
+        return new AsyncLocalCache<>(builder, function, executor);
+    }
+
+    /**
+     * 创建异步加载的本地缓存
+     */
+    public static <K, V> AsyncLocalCache<K, V> createAsync(Function<K, V> function, long maxSize, long refreshSec, long expireSec) {
+        return createAsync(function, maxSize, refreshSec, expireSec, getDefaultExecutor());
+    }
+
+    /**
+     * 使用传入的线程池创建异步加载的本地缓存
+     */
+    public static <K, V> AsyncLocalCache<K, V> createAsync(Function<K, V> function, long maxSize, long refreshSec, long expireSec, Executor executor) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .refreshAfterWrite(refreshSec, TimeUnit.SECONDS)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .maximumSize(maxSize);
+        return new AsyncLocalCache<>(builder, function, executor);
+    }
+
+    /**
+     * 创建按key自适应刷新间隔的本地缓存，值长期不变的key会逐渐降低刷新频率
+     * <p>刷新在默认线程池中执行，刷新间隔由{@param policy}决定，{@param policy}不能与其他缓存共用</p>
+     */
+    public static <K, V> LoadingCache<K, V> createAdaptive(Function<K, V> function, long maxSize, long expireSec, AdaptiveRefreshPolicy<V> policy) {
+        return createAdaptive(function, maxSize, expireSec, policy, getDefaultExecutor());
+    }
+
+    /**
+     * 使用传入的线程池创建按key自适应刷新间隔的本地缓存
+     * <p>未到刷新时间时会把旧值重新写回，expireAfterWrite随之重置，因此要求{@param expireSec}不小于最长刷新间隔，
+     * 值不变的key最长的旧值时间由最长刷新间隔决定</p>
+     */
+    public static <K, V> LoadingCache<K, V> createAdaptive(Function<K, V> function, long maxSize, long expireSec,
+                                                           AdaptiveRefreshPolicy<V> policy, Executor executor) {
+        return createAdaptive(function, maxSize, expireSec, policy, executor, Ticker.systemTicker());
+    }
+
+    static <K, V> LoadingCache<K, V> createAdaptive(Function<K, V> function, long maxSize, long expireSec,
+                                                    final AdaptiveRefreshPolicy<V> policy, Executor executor, Ticker ticker) {
+        Preconditions.checkNotNull(policy);
+        Preconditions.checkArgument(policy.getMaxRefreshSec() <= expireSec,
+                "maxRefreshSec (%s) must not be greater than expireSec (%s)", policy.getMaxRefreshSec(), expireSec);
+        return CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .refreshAfterWrite(policy.getMinRefreshSec(), TimeUnit.SECONDS)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .removalListener(new RemovalListener<K, V>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<K, V> notification) {
+                        if (notification.getCause() != RemovalCause.REPLACED) {
+                            policy.onRemoved(notification.getKey());
+                        }
+                    }
+                })
+                .build(createAdaptiveCacheLoader(function, executor, policy));
+    }
+
+    /**
+     * 创建全量快照缓存，适用于可以一次查出全部数据的小表
+     * <p>创建时同步加载一次，加载抛出的异常直接抛给调用方，返回空数据时缓存从空快照开始；之后每{@param refreshSec}秒整体重新加载</p>
+     */
+    public static <K, V> SnapshotCache<K, V> createSnapshot(Supplier<? extends Map<K, V>> supplier, long refreshSec) {
+        return createSnapshot(supplier, refreshSec, getDefaultExecutor());
+    }
+
+    /**
+     * 使用传入的线程池创建全量快照缓存
+     */
+    public static <K, V> SnapshotCache<K, V> createSnapshot(Supplier<? extends Map<K, V>> supplier, long refreshSec, Executor executor) {
+        SnapshotCache<K, V> cache = new SnapshotCache<>(supplier);
+        cache.loadInitial();
+        cache.schedule(SNAPSHOT_SCHEDULER, executor, refreshSec, TimeUnit.SECONDS);
+        return cache;
+    }
+
+    static <K, V> CacheLoader<K, V> createCacheLoader(final Function<K, V> function, Executor executor) {
+        return createCacheLoader(function, executor, null);
+    }
+
+    private static <K, V> CacheLoader<K, V> createCacheLoader(final Function<K, V> function, Executor executor, final HotKeyDetector<K> detector) {
         return CacheLoader.asyncReloading(new CacheLoader<K, V>() {
             @Override
             public V load(K k) {
-                return function.apply(k);
+                if (detector == null) {
+                    return function.apply(k);
+                }
+                long start = System.nanoTime();
+                try {
+                    return function.apply(k);
+                } finally {
+                    detector.recordLoad(k, System.nanoTime() - start);
+                }
             }
 
             /**
@@ -81,7 +258,11 @@ public class LocalCacheUtil {
             public ListenableFuture<V> reload(final K key, final V oldValue) throws Exception {
                 Preconditions.checkNotNull(key);
                 Preconditions.checkNotNull(oldValue);
-                V newvalue = this.load(key);
+                long start = System.nanoTime();
+                V newvalue = function.apply(key);
+                if (detector != null) {
+                    detector.recordRefresh(key, System.nanoTime() - start);
+                }
                 if (newvalue == null) {
                     newvalue = oldValue;
                 }
@@ -90,6 +271,46 @@ public class LocalCacheUtil {
         }, executor);
     }
 
+    private static <K, V> CacheLoader<K, V> createAdaptiveCacheLoader(final Function<K, V> function, final Executor executor,
+                                                                      final AdaptiveRefreshPolicy<V> policy) {
+        return new CacheLoader<K, V>() {
+            @Override
+            public V load(K k) {
+                V value = function.apply(k);
+                // 返回null时Guava不会写入缓存，也就没有移除通知，这里不能建立记录，否则不存在的key会一直留在policy中
+                if (value != null) {
+                    policy.onLoaded(k);
+                }
+                return value;
+            }
+
+            /**
+             * 未到该key的刷新时间时直接沿用旧值，不占用刷新线程；如果返回了空值，则不更新本地缓存
+             */
+            @Override
+            public ListenableFuture<V> reload(final K key, final V oldValue) {
+                Preconditions.checkNotNull(key);
+                Preconditions.checkNotNull(oldValue);
+                if (!policy.shouldRefresh(key)) {
+                    return Futures.immediateFuture(oldValue);
+                }
+                ListenableFutureTask<V> task = ListenableFutureTask.create(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        V newvalue = function.apply(key);
+                        policy.onRefreshed(key, oldValue, newvalue);
+                        if (newvalue == null) {
+                            newvalue = oldValue;
+                        }
+                        return newvalue;
+                    }
+                });
+                executor.execute(task);
+                return task;
+            }
+        };
+    }
+
     /**
      * 公用本地缓存异步刷新线程，避免每个缓存新开线程，导致空闲
      * <p>更新频次很高的本地缓存，建议单独使用一个线程</p>
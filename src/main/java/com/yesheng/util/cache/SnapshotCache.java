@@ -0,0 +1,156 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全量快照缓存
+ * <p>适用于配置表、字典表这类数据量小、可以一次查出全部数据的场景。
+ * 定时调用一次加载函数取回全量数据，构建为不可变的{@link ImmutableMap}后整体替换，读取时不加锁，也没有单个key的刷新。</p>
+ * <p>加载失败、返回null或者空集合时保留上一份快照，与{@link LocalCacheUtil}中reload保留oldValue的处理一致。
+ * 创建时的首次加载抛出的异常会直接抛给调用方；首次加载返回null或者空集合时，缓存从空快照开始，等待下一次定时刷新</p>
+ */
+public class SnapshotCache<K, V> implements Closeable {
+
+    private final Supplier<? extends Map<K, V>> loader;
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private volatile ImmutableMap<K, V> snapshot = ImmutableMap.of();
+
+    private volatile long lastLoadMillis;
+
+    private volatile Exception lastFailure;
+
+    private volatile ScheduledFuture<?> scheduledFuture;
+
+    SnapshotCache(Supplier<? extends Map<K, V>> loader) {
+        this.loader = Preconditions.checkNotNull(loader);
+    }
+
+    /**
+     * 首次加载，异常直接抛出，返回null或者空集合时保持空快照
+     */
+    void loadInitial() {
+        Map<K, V> data = loader.get();
+        if (data != null && !data.isEmpty()) {
+            snapshot = ImmutableMap.copyOf(data);
+            lastLoadMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 按{@param period}的间隔定时刷新，刷新动作在{@param executor}中执行，避免占用调度线程
+     */
+    void schedule(ScheduledExecutorService scheduler, final Executor executor, long period, TimeUnit unit) {
+        Preconditions.checkArgument(period > 0, "period must be positive");
+        scheduledFuture = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                // 这里抛出异常会使后续的定时任务全部取消，线程池拒绝等异常只记录，等下个周期再试
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            refresh();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    failureCount.incrementAndGet();
+                    lastFailure = e;
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * 立即重新加载全量数据
+     *
+     * @return 是否替换了快照，正在加载、加载失败、返回空数据时返回false
+     */
+    public boolean refresh() {
+        if (!loading.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Map<K, V> data = loader.get();
+            if (data == null || data.isEmpty()) {
+                return false;
+            }
+            snapshot = ImmutableMap.copyOf(data);
+            lastLoadMillis = System.currentTimeMillis();
+            return true;
+        } catch (Exception e) {
+            failureCount.incrementAndGet();
+            lastFailure = e;
+            return false;
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    public V get(K key) {
+        return snapshot.get(key);
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V value = snapshot.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(K key) {
+        return snapshot.containsKey(key);
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * 当前的全量快照，不可修改，多次读取之间如果发生了刷新，可能得到不同的快照
+     */
+    public ImmutableMap<K, V> asMap() {
+        return snapshot;
+    }
+
+    /**
+     * 最近一次成功加载的时间，从未成功加载时为0
+     */
+    public long getLastLoadMillis() {
+        return lastLoadMillis;
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * 最近一次加载失败的异常，没有失败过时为null
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * 停止定时刷新，已加载的快照仍然可以读取
+     */
+    @Override
+    public void close() {
+        ScheduledFuture<?> future = scheduledFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
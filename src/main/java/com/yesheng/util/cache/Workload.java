@@ -0,0 +1,137 @@
+package com.yesheng.util.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * 缓存访问负载，供{@link CacheSimulator}回放
+ * <p>每次调用{@link #iterator()}都从头开始生成同样的访问序列，便于同一负载在不同的缓存配置下重复回放</p>
+ */
+public interface Workload extends Iterable<Object> {
+
+    /**
+     * 回放访问记录文件，每行一个key，空行忽略
+     * <p>创建时一次性读入内存，多次回放不再重复读取文件，也不会在回放中途出错时遗留打开的文件</p>
+     */
+    static Workload trace(Path file) {
+        Preconditions.checkArgument(Files.isRegularFile(file), "trace file not found: %s", file);
+        final ImmutableList.Builder<Object> builder = ImmutableList.builder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    builder.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final ImmutableList<Object> keys = builder.build();
+        return keys::iterator;
+    }
+
+    /**
+     * Zipf分布的访问，少量key占据大部分流量
+     *
+     * @param keySpace 不同key的个数
+     * @param exponent 分布的倾斜程度，常见取值0.7~1.2，越大越集中
+     * @param accesses 访问次数
+     * @param seed     随机种子
+     */
+    static Workload zipf(int keySpace, double exponent, final long accesses, final long seed) {
+        Preconditions.checkArgument(keySpace > 0, "keySpace must be positive");
+        final double[] cdf = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < keySpace; i++) {
+            cdf[i] /= sum;
+        }
+        return () -> new AbstractIterator<Object>() {
+            private final Random random = new Random(seed);
+            private long count;
+
+            @Override
+            protected Object computeNext() {
+                if (count++ >= accesses) {
+                    return endOfData();
+                }
+                int index = Arrays.binarySearch(cdf, random.nextDouble());
+                return (long) (index >= 0 ? index : Math.min(-index - 1, cdf.length - 1));
+            }
+        };
+    }
+
+    /**
+     * 顺序扫描，每个key只访问一次，用于观察一次性的批量访问对缓存的冲击
+     */
+    static Workload scan(final long accesses) {
+        return () -> new AbstractIterator<Object>() {
+            private long count;
+
+            @Override
+            protected Object computeNext() {
+                return count < accesses ? count++ : endOfData();
+            }
+        };
+    }
+
+    /**
+     * 循环访问，key从0递增到loopSize-1后重新开始，缓存小于loopSize时LRU几乎全部未命中
+     */
+    static Workload loop(final long loopSize, final long accesses) {
+        Preconditions.checkArgument(loopSize > 0, "loopSize must be positive");
+        return () -> new AbstractIterator<Object>() {
+            private long count;
+
+            @Override
+            protected Object computeNext() {
+                return count < accesses ? count++ % loopSize : endOfData();
+            }
+        };
+    }
+
+    /**
+     * 解析命令行中的负载描述
+     * <ul>
+     * <li>zipf:keySpace:exponent:accesses</li>
+     * <li>scan:accesses</li>
+     * <li>loop:loopSize:accesses</li>
+     * <li>其他值当做访问记录文件的路径</li>
+     * </ul>
+     */
+    static Workload parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "zipf":
+                Preconditions.checkArgument(parts.length == 4, "usage: zipf:keySpace:exponent:accesses");
+                return zipf(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), Long.parseLong(parts[3]), 0);
+            case "scan":
+                Preconditions.checkArgument(parts.length == 2, "usage: scan:accesses");
+                return scan(Long.parseLong(parts[1]));
+            case "loop":
+                Preconditions.checkArgument(parts.length == 3, "usage: loop:loopSize:accesses");
+                return loop(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            default:
+                return trace(Paths.get(spec));
+        }
+    }
+
+    @Override
+    Iterator<Object> iterator();
+}
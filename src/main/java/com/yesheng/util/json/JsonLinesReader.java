@@ -0,0 +1,322 @@
+package com.yesheng.util.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * JSON Lines（NDJSON，每行一个json）文件的并行解析
+ * <p>文件通过内存映射读取，按换行符切分为若干块，每块在线程池中直接从映射的内存逐行解析，不复制到堆上，解析结果在调用{@link #read(Path, Consumer)}的线程中
+ * 依次交给consumer，consumer不需要考虑线程安全。同时在解析中的块数有上限，consumer处理慢时会阻塞切分，避免内存堆积。</p>
+ * <p>解析失败的行交给{@link MalformedLineHandler}，不会中断整个文件的处理；一行中json结束后还有其他内容时同样视为解析失败</p>
+ */
+public class JsonLinesReader<T> {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final int SCAN_BUFFER_SIZE = 64 << 10;
+
+    private static final byte NEW_LINE = '\n';
+
+    private final ObjectReader reader;
+
+    private Executor executor = ForkJoinPool.commonPool();
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int maxInFlightChunks = Runtime.getRuntime().availableProcessors() * 2;
+
+    private boolean ordered = true;
+
+    private MalformedLineHandler malformedLineHandler = (offset, line, e) -> {
+    };
+
+    /**
+     * @param reader 解析单行使用的ObjectReader，通常由{@link JsonUtils#linesReader(Class)}创建，会开启{@link DeserializationFeature#FAIL_ON_TRAILING_TOKENS}
+     */
+    public JsonLinesReader(ObjectReader reader) {
+        this.reader = Preconditions.checkNotNull(reader).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    }
+
+    /**
+     * 解析使用的线程池，默认为{@link ForkJoinPool#commonPool()}
+     */
+    public JsonLinesReader<T> executor(Executor executor) {
+        this.executor = Preconditions.checkNotNull(executor);
+        return this;
+    }
+
+    /**
+     * 每块的大致字节数，实际会延伸到下一个换行符，默认8MB
+     */
+    public JsonLinesReader<T> chunkSize(int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * 同时在解析中的最大块数，默认为CPU核数的2倍，同时映射的文件区域约为 chunkSize * maxInFlightChunks
+     */
+    public JsonLinesReader<T> maxInFlightChunks(int maxInFlightChunks) {
+        Preconditions.checkArgument(maxInFlightChunks > 0, "maxInFlightChunks must be positive");
+        this.maxInFlightChunks = maxInFlightChunks;
+        return this;
+    }
+
+    /**
+     * 是否按文件中的顺序交给consumer，默认为true，解析失败的行也按文件中的顺序与解析结果穿插回调；
+     * 为false时先解析完的块先交付，吞吐更稳定，同一块内仍保持文件中的顺序
+     */
+    public JsonLinesReader<T> ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * 解析失败的行的处理，默认忽略，失败行数可从{@link Summary#getMalformedLines()}获取
+     */
+    public JsonLinesReader<T> onMalformedLine(MalformedLineHandler malformedLineHandler) {
+        this.malformedLineHandler = Preconditions.checkNotNull(malformedLineHandler);
+        return this;
+    }
+
+    /**
+     * 解析文件，每行的解析结果交给{@param consumer}，空行忽略
+     */
+    public Summary read(Path file, Consumer<? super T> consumer) throws IOException {
+        long startMillis = System.currentTimeMillis();
+        Summary summary = new Summary();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ArrayDeque<CompletableFuture<Chunk<T>>> pending = new ArrayDeque<>();
+            BlockingQueue<CompletableFuture<Chunk<T>>> completed = new LinkedBlockingQueue<>();
+            byte[] scan = new byte[SCAN_BUFFER_SIZE];
+            int inFlight = 0;
+            long start = 0;
+            while (start < size) {
+                if (inFlight >= maxInFlightChunks) {
+                    deliver(ordered ? pending.poll() : completed.take(), consumer, summary);
+                    inFlight--;
+                }
+                long end = nextBoundary(channel, start, size, scan);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("chunk at offset " + start + " exceeds 2GB, the line starting near offset "
+                            + (start + chunkSize) + " is too long");
+                }
+                final long offset = start;
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                CompletableFuture<Chunk<T>> future = CompletableFuture.supplyAsync(() -> decode(buffer, offset), executor);
+                if (ordered) {
+                    pending.add(future);
+                } else {
+                    future.whenComplete((chunk, e) -> completed.add(future));
+                }
+                inFlight++;
+                start = end;
+            }
+            while (inFlight > 0) {
+                deliver(ordered ? pending.poll() : completed.take(), consumer, summary);
+                inFlight--;
+            }
+            summary.bytes = size;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading " + file);
+        }
+        summary.elapsedMillis = System.currentTimeMillis() - startMillis;
+        return summary;
+    }
+
+    private void deliver(CompletableFuture<Chunk<T>> future, Consumer<? super T> consumer, Summary summary)
+            throws IOException, InterruptedException {
+        Chunk<T> chunk;
+        try {
+            chunk = future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("failed to decode chunk", e.getCause());
+        }
+        // 解析失败的行记录了它之前已解析出的结果个数，按此穿插回调，保持文件中的顺序
+        int index = 0;
+        for (MalformedLine malformed : chunk.malformedLines) {
+            for (; index < malformed.recordIndex; index++) {
+                consumer.accept(chunk.records.get(index));
+            }
+            malformedLineHandler.onMalformedLine(malformed.offset, malformed.line, malformed.exception);
+        }
+        for (; index < chunk.records.size(); index++) {
+            consumer.accept(chunk.records.get(index));
+        }
+        summary.chunks++;
+        summary.records += chunk.records.size();
+        summary.malformedLines += chunk.malformedLines.size();
+    }
+
+    /**
+     * 从start往后chunkSize字节处开始找下一个换行符，返回换行符之后的位置
+     */
+    private long nextBoundary(FileChannel channel, long start, long size, byte[] scan) throws IOException {
+        long position = start + chunkSize;
+        if (position >= size) {
+            return size;
+        }
+        while (position < size) {
+            int read = channel.read(ByteBuffer.wrap(scan), position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan[i] == NEW_LINE) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private Chunk<T> decode(MappedByteBuffer buffer, long offset) {
+        Chunk<T> chunk = new Chunk<>();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != NEW_LINE) {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            if (!isBlank(buffer, lineStart, contentEnd)) {
+                ByteBuffer line = slice(buffer, lineStart, contentEnd);
+                try {
+                    chunk.records.add(reader.<T>readValue(new ByteBufferBackedInputStream(line)));
+                } catch (IOException | RuntimeException e) {
+                    chunk.malformedLines.add(new MalformedLine(chunk.records.size(), offset + lineStart,
+                            toString(slice(buffer, lineStart, contentEnd)), e));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * 按[start, end)截取一行，转为Buffer调用position、limit以兼容Java 8
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer line = buffer.duplicate();
+        ((Buffer) line).limit(end);
+        ((Buffer) line).position(start);
+        return line;
+    }
+
+    private static String toString(ByteBuffer line) {
+        byte[] bytes = new byte[line.remaining()];
+        line.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析失败的行的回调，在调用{@link #read(Path, Consumer)}的线程中执行
+     */
+    public interface MalformedLineHandler {
+
+        /**
+         * @param offset 该行在文件中的起始字节位置
+         * @param line   该行的原始内容
+         * @param e      解析异常
+         */
+        void onMalformedLine(long offset, String line, Exception e);
+    }
+
+    /**
+     * 一次解析的统计
+     */
+    public static final class Summary {
+        private long bytes;
+        private long chunks;
+        private long records;
+        private long malformedLines;
+        private long elapsedMillis;
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getMalformedLines() {
+            return malformedLines;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Summary{bytes=%d, chunks=%d, records=%d, malformedLines=%d, elapsedMillis=%d}",
+                    bytes, chunks, records, malformedLines, elapsedMillis);
+        }
+    }
+
+    private static final class Chunk<T> {
+        private final List<T> records = new ArrayList<>();
+        private final List<MalformedLine> malformedLines = new ArrayList<>(0);
+    }
+
+    private static final class MalformedLine {
+        /**
+         * 该行之前已解析出的结果个数
+         */
+        private final int recordIndex;
+        private final long offset;
+        private final String line;
+        private final Exception exception;
+
+        private MalformedLine(int recordIndex, long offset, String line, Exception exception) {
+            this.recordIndex = recordIndex;
+            this.offset = offset;
+            this.line = line;
+            this.exception = exception;
+        }
+    }
+}
@@ -34,6 +34,11 @@ public final class JsonUtils {
 
     private final static ObjectMapper OBJECT_MAPPER;
 
+    /**
+     * 与OBJECT_MAPPER配置相同，反序列化时对字符串值去重，供parseXxxInterned方法使用
+     */
+    private final static ObjectMapper INTERNED_OBJECT_MAPPER;
+
     public final static String ERROR_MESSAGE = "Exception thrown while parsing ObjectMapper.";
 
     static {
@@ -56,6 +61,9 @@ public final class JsonUtils {
         OBJECT_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         OBJECT_MAPPER.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
         OBJECT_MAPPER.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
+
+        INTERNED_OBJECT_MAPPER = OBJECT_MAPPER.copy();
+        INTERNED_OBJECT_MAPPER.registerModule(new StringDedupModule(StringPool.shared()));
     }
 
     private JsonUtils() {
@@ -664,4 +672,354 @@ public final class JsonUtils {
         }
         return null;
     }
+
+    /**
+     * 将String类型的json数据解析为Java对象，字符串值去重
+     * <p>适用于解析结果需要长期保存在本地缓存中的场景，重复的字符串共用{@link StringPool#shared()}中的实例，减少常驻内存</p>
+     *
+     * @param content 需要解析的内容
+     * @param type    需要解析的类型Class
+     * @param <T>     需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，如果解析异常则返回null.
+     */
+    public static <T> T parseObjectInterned(String content, Class<T> type) {
+        return parseObjectInterned(content, type, true);
+    }
+
+    /**
+     * 将String类型的json数据解析为Java对象，字符串值去重
+     *
+     * @param content          需要解析的内容
+     * @param type             需要解析的类型Class
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              需要解析的类型
+     * @return 一个Java对象由{@param type}指定，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> T parseObjectInterned(String content, Class<T> type, boolean swallowException) {
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(content, type);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将Json规范的byte数据解析为Java对象，字符串值去重
+     *
+     * @param data 需要解析的数据
+     * @param type 需要解析的类型Class
+     * @param <T>  需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，如果解析异常则返回null.
+     */
+    public static <T> T parseObjectInterned(byte[] data, Class<T> type) {
+        return parseObjectInterned(data, type, true);
+    }
+
+    /**
+     * 将Json规范的byte数据解析为Java对象，字符串值去重
+     *
+     * @param data             需要解析的数据
+     * @param type             需要解析的类型Class
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> T parseObjectInterned(byte[] data, Class<T> type, boolean swallowException) {
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(data, type);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将String类型的json数据解析为Java对象，字符串值去重
+     *
+     * @param content 需要解析的内容
+     * @param type    需要解析的类型TypeReference
+     * @param <T>     需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，如果解析异常则返回null.
+     */
+    public static <T> T parseObjectInterned(String content, TypeReference<T> type) {
+        return parseObjectInterned(content, type, true);
+    }
+
+    /**
+     * 将String类型的json数据解析为Java对象，字符串值去重
+     *
+     * @param content          需要解析的内容
+     * @param type             需要解析的类型TypeReference
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> T parseObjectInterned(String content, TypeReference<T> type, boolean swallowException) {
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(content, type);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将Json规范的byte数据解析为Java对象，字符串值去重
+     *
+     * @param data 需要解析的数据
+     * @param type 需要解析的类型TypeReference
+     * @param <T>  需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，如果解析异常则返回null.
+     */
+    public static <T> T parseObjectInterned(byte[] data, TypeReference<T> type) {
+        return parseObjectInterned(data, type, true);
+    }
+
+    /**
+     * 将Json规范的byte数据解析为Java对象，字符串值去重
+     *
+     * @param data             需要解析的数据
+     * @param type             需要解析的类型TypeReference
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              需要解析的类型
+     * @return 一个Java对象由 {@param type}指定，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> T parseObjectInterned(byte[] data, TypeReference<T> type, boolean swallowException) {
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(data, type);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code List}集合，字符串值去重
+     *
+     * @param content 需要解析的内容
+     * @param type    需要解析的对象类型
+     * @param <T>     集合元素的类型
+     * @return 一个 {@link List}，如果出现异常则返回null.
+     */
+    public static <T> List<T> parseListInterned(String content, Class<T> type) {
+        return parseListInterned(content, type, true);
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code List}集合，字符串值去重
+     *
+     * @param content          需要解析的内容
+     * @param type             需要解析的对象类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              集合元素的类型
+     * @return 一个 {@link List}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> List<T> parseListInterned(String content, Class<T> type, boolean swallowException) {
+        try {
+            CollectionType collectionType = INTERNED_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, type);
+            return INTERNED_OBJECT_MAPPER.readValue(content, collectionType);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code List}集合，字符串值去重
+     *
+     * @param data 需要解析的内容
+     * @param type 需要解析的对象类型
+     * @param <T>  集合元素的类型
+     * @return 一个 {@link List}，如果出现异常则返回null.
+     */
+    public static <T> List<T> parseListInterned(byte[] data, Class<T> type) {
+        return parseListInterned(data, type, true);
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code List}集合，字符串值去重
+     *
+     * @param data             需要解析的内容
+     * @param type             需要解析的对象类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <T>              集合元素的类型
+     * @return 一个 {@link List}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <T> List<T> parseListInterned(byte[] data, Class<T> type, boolean swallowException) {
+        try {
+            CollectionType collectionType = INTERNED_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, type);
+            return INTERNED_OBJECT_MAPPER.readValue(data, collectionType);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param content   需要解析的内容
+     * @param valueType 需要解析Map集合Value的类型
+     * @param <V>       Map集合Value的类型
+     * @return 一个 {@link Map}，如果解析异常则返回null.
+     */
+    public static <V> Map<String, V> parseMapInterned(String content, Class<V> valueType) {
+        return parseMapInterned(content, String.class, valueType, true);
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param content          需要解析的内容
+     * @param valueType        需要解析Map集合Value的类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <V>              Map集合Value的类型
+     * @return 一个 {@link Map}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <V> Map<String, V> parseMapInterned(String content, Class<V> valueType, boolean swallowException) {
+        return parseMapInterned(content, String.class, valueType, swallowException);
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param data      需要解析的内容
+     * @param valueType 需要解析Map集合Value的类型
+     * @param <V>       Map集合Value的类型
+     * @return 一个 {@link Map}，如果解析异常则返回null.
+     */
+    public static <V> Map<String, V> parseMapInterned(byte[] data, Class<V> valueType) {
+        return parseMapInterned(data, String.class, valueType, true);
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param data             需要解析的内容
+     * @param valueType        需要解析Map集合Value的类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @param <V>              Map集合Value的类型
+     * @return 一个 {@link Map}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <V> Map<String, V> parseMapInterned(byte[] data, Class<V> valueType, boolean swallowException) {
+        return parseMapInterned(data, String.class, valueType, swallowException);
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param content   需要解析的内容
+     * @param keyType   需要解析Map集合Key的类型
+     * @param valueType 需要解析Map集合Value的类型
+     * @param <K>       Map集合Key的类型
+     * @param <V>       Map集合Value的类型
+     * @return 一个 {@link Map}，如果解析异常则返回null.
+     */
+    public static <K, V> Map<K, V> parseMapInterned(String content, Class<K> keyType, Class<V> valueType) {
+        return parseMapInterned(content, keyType, valueType, true);
+    }
+
+    /**
+     * 将String类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param content          需要解析的内容
+     * @param keyType          需要解析Map集合Key的类型
+     * @param valueType        需要解析Map集合Value的类型
+     * @param <K>              Map集合Key的类型
+     * @param <V>              Map集合Value的类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @return 一个 {@link Map}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <K, V> Map<K, V> parseMapInterned(String content, Class<K> keyType, Class<V> valueType, boolean swallowException) {
+        MapType mapType = INTERNED_OBJECT_MAPPER.getTypeFactory().constructMapType(HashMap.class, keyType, valueType);
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(content, mapType);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param data      需要解析的内容
+     * @param keyType   需要解析Map集合Key的类型
+     * @param valueType 需要解析Map集合Value的类型
+     * @param <K>       Map集合Key的类型
+     * @param <V>       Map集合Value的类型
+     * @return 一个 {@link Map}，如果解析异常则返回null.
+     */
+    public static <K, V> Map<K, V> parseMapInterned(byte[] data, Class<K> keyType, Class<V> valueType) {
+        return parseMapInterned(data, keyType, valueType, true);
+    }
+
+    /**
+     * 将byte类型的json数据解析为{@code Map}集合，字符串值去重
+     *
+     * @param data             需要解析的内容
+     * @param keyType          需要解析Map集合Key的类型
+     * @param valueType        需要解析Map集合Value的类型
+     * @param <K>              Map集合Key的类型
+     * @param <V>              Map集合Value的类型
+     * @param swallowException 是否吞掉异常，如果是则不抛出异常，否则异常往上抛出
+     * @return 一个 {@link Map}，当解析产生异常而{@param swallowException}为false的时候则会将异常抛出，
+     * 客户方需要捕获异常，为true则会吞掉异常，返回null
+     */
+    public static <K, V> Map<K, V> parseMapInterned(byte[] data, Class<K> keyType, Class<V> valueType, boolean swallowException) {
+        MapType mapType = INTERNED_OBJECT_MAPPER.getTypeFactory().constructMapType(HashMap.class, keyType, valueType);
+        try {
+            return INTERNED_OBJECT_MAPPER.readValue(data, mapType);
+        } catch (Exception e) {
+            swallowException(swallowException, e);
+            LOGGER.error(ERROR_MESSAGE, e);
+        }
+        return null;
+    }
+
+    /**
+     * parseXxxInterned方法使用的字符串池，可用于查看去重的命中率
+     */
+    public static StringPool getInternPool() {
+        return StringPool.shared();
+    }
+
+    /**
+     * 创建JSON Lines文件的并行解析器，每行解析为{@param type}指定的类型
+     *
+     * @param type 每行需要解析的类型Class
+     * @param <T>  需要解析的类型
+     * @return 一个 {@link JsonLinesReader}，可继续设置线程池、分块大小、是否保序等参数
+     */
+    public static <T> JsonLinesReader<T> linesReader(Class<T> type) {
+        return new JsonLinesReader<>(OBJECT_MAPPER.readerFor(type));
+    }
+
+    /**
+     * 创建JSON Lines文件的并行解析器，每行解析为{@param type}指定的类型
+     *
+     * @param type 每行需要解析的类型TypeReference
+     * @param <T>  需要解析的类型
+     * @return 一个 {@link JsonLinesReader}，可继续设置线程池、分块大小、是否保序等参数
+     */
+    public static <T> JsonLinesReader<T> linesReader(TypeReference<T> type) {
+        return new JsonLinesReader<>(OBJECT_MAPPER.readerFor(type));
+    }
 }
@@ -0,0 +1,60 @@
+package com.yesheng.util.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+
+/**
+ * 反序列化时对字符串值去重的Jackson模块
+ * <p>注册到ObjectMapper上对该mapper的所有字符串值生效；只需要对部分字段去重时，可以不注册模块，
+ * 在字段上使用{@code @JsonDeserialize(using = StringDedupModule.DedupStringDeserializer.class)}。
+ * Map的key和字段名一样由Jackson的解析器统一intern（{@code JsonFactory.Feature.INTERN_FIELD_NAMES}），不需要再去重</p>
+ */
+public class StringDedupModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public StringDedupModule() {
+        this(StringPool.shared());
+    }
+
+    public StringDedupModule(StringPool pool) {
+        super(StringDedupModule.class.getSimpleName());
+        addDeserializer(String.class, new DedupStringDeserializer(pool));
+    }
+
+    /**
+     * 字符串值去重，无参构造使用{@link StringPool#shared()}
+     */
+    public static class DedupStringDeserializer extends StdScalarDeserializer<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient StringPool pool;
+
+        public DedupStringDeserializer() {
+            this(StringPool.shared());
+        }
+
+        public DedupStringDeserializer(StringPool pool) {
+            super(String.class);
+            this.pool = pool;
+        }
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return pool.intern(StringDeserializer.instance.deserialize(p, ctxt));
+        }
+
+        /**
+         * 字符串池不参与序列化，反序列化后使用共享池
+         */
+        private Object readResolve() {
+            return pool == null ? new DedupStringDeserializer() : this;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.yesheng.util.json;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 字符串去重池
+ * <p>反序列化出来的对象长期放在本地缓存里时，状态码、国家名这类取值有限的字符串会产生大量重复实例。
+ * 池子是一个定长的直接映射表，按hash定位槽位，命中则返回池中已有的实例，未命中则用新实例覆盖该槽位。
+ * 不加锁，占用内存固定，hash冲突只会降低命中率，不会影响正确性。</p>
+ */
+public final class StringPool {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final StringPool SHARED = new StringPool(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+
+    private final AtomicReferenceArray<String> table;
+
+    private final int mask;
+
+    private final int maxLength;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * @param capacity  槽位个数，会向上取整为2的幂
+     * @param maxLength 超过该长度的字符串重复的可能性小，直接返回不入池
+     */
+    public StringPool(int capacity, int maxLength) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 24, "capacity must be in (0, 2^24]");
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 默认的共享池，{@link JsonUtils}的去重方法和未指定池的{@link StringDedupModule}都使用该池
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 返回与{@param value}相等的池中实例，池中没有时返回{@param value}本身并放入池中
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+        requestCount.increment();
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        String cached = table.get(index);
+        if (cached != null && cached.equals(value)) {
+            hitCount.increment();
+            return cached;
+        }
+        table.lazySet(index, value);
+        return value;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 命中率，即被去重的字符串占入池请求的比例
+     */
+    public double getHitRate() {
+        long requests = requestCount.sum();
+        return requests == 0 ? 1.0 : (double) hitCount.sum() / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StringPool{capacity=%d, requests=%d, hits=%d, hitRate=%.4f}",
+                table.length(), getRequestCount(), getHitCount(), getHitRate());
+    }
+}
@@ -0,0 +1,59 @@
+package com.yesheng.util.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Description
+ * @Date 2026年10月18日
+ */
+public class CacheSimulatorTest {
+
+    /**
+     * Zipf负载下容量越大命中率越高
+     */
+    @Test
+    public void testSweepMaxSize() {
+        CacheSimulator simulator = new CacheSimulator(Workload.zipf(10000, 1.0, 200000, 1), 1000);
+        List<CacheSimulator.Result> results = simulator.sweepMaxSize(60, 600, 100, 1000, 10000);
+        Assert.assertTrue(results.get(0).getHitRatio() < results.get(1).getHitRatio());
+        Assert.assertTrue(results.get(1).getHitRatio() < results.get(2).getHitRatio());
+        Assert.assertEquals(200, results.get(2).getSimulatedSeconds(), 1e-6);
+    }
+
+    /**
+     * 循环访问的key数量超过容量时LRU全部未命中，容量足够时只有首轮未命中，之后每个key每个刷新周期回源一次
+     * <p>Guava按segment分摊maxSize，容量与key数量相同时仍然会有淘汰，所以这里留了余量</p>
+     */
+    @Test
+    public void testLoopAndRefresh() {
+        CacheSimulator simulator = new CacheSimulator(Workload.loop(100, 10000), 100);
+        Assert.assertEquals(0, simulator.run(50, 60, 600).getHitRatio(), 1e-9);
+        CacheSimulator.Result result = simulator.run(1000, 10, 600);
+        Assert.assertEquals(0.99, result.getHitRatio(), 1e-9);
+        Assert.assertEquals(10, result.getRefreshQps(), 1);
+        Assert.assertEquals(0, result.getPeakRefreshQueueDepth(), 1e-9);
+
+        // 每秒约10次刷新，每次回源1秒，同时执行约10个，超过2个刷新线程的部分排队
+        CacheSimulator.Result queued = simulator.backendLatencyMillis(1000).refreshThreads(2).run(1000, 10, 600);
+        Assert.assertEquals(queued.getAverageRefreshesInFlight() - 2, queued.getAverageRefreshQueueDepth(), 1e-9);
+        Assert.assertTrue(queued.getPeakRefreshQueueDepth() > 0);
+    }
+
+    @Test
+    public void testTrace() throws Exception {
+        File trace = File.createTempFile("trace", ".txt");
+        trace.deleteOnExit();
+        Files.write(trace.toPath(), Arrays.asList("a", "b", "", "a", "a"), StandardCharsets.UTF_8);
+        CacheSimulator.Result result = new CacheSimulator(Workload.trace(trace.toPath()), 1).run(10, 60, 600);
+        Assert.assertEquals(4, result.getAccesses());
+        Assert.assertEquals(0.5, result.getHitRatio(), 1e-9);
+        Assert.assertEquals(2, result.getPeakEntries());
+    }
+}
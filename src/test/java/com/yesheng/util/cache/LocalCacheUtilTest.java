@@ -1,9 +1,23 @@
 package com.yesheng.util.cache;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @Description
@@ -31,4 +45,302 @@ public class LocalCacheUtilTest {
         }
 
     }
+
+    /**
+     * 热点key会排在topKeys的最前面，并带上未命中时的加载次数和刷新次数
+     */
+    @Test
+    public void testHotKeyDetector() {
+        HotKeyDetector<Integer> detector = new HotKeyDetector<>(4, 256, 1);
+        LoadingCache<Integer, Integer> loadingCache = LocalCacheUtil.create((key) -> key * 2, 100, 10, 10,
+                MoreExecutors.directExecutor(), detector);
+        for (int i = 0; i < 1000; i++) {
+            loadingCache.getUnchecked(7);
+            loadingCache.getUnchecked(i % 50 + 100);
+        }
+        loadingCache.refresh(7);
+        List<HotKeyDetector.HotKey<Integer>> topKeys = detector.topKeys();
+        Assert.assertTrue(topKeys.size() <= 4);
+        HotKeyDetector.HotKey<Integer> hottest = topKeys.get(0);
+        Assert.assertEquals(Integer.valueOf(7), hottest.getKey());
+        Assert.assertEquals(1, hottest.getLoadCount());
+        Assert.assertTrue(hottest.getAverageLoadMillis() >= 0);
+        Assert.assertEquals(1, hottest.getRefreshCount());
+        Assert.assertTrue(hottest.getAverageRefreshMillis() >= 0);
+        Assert.assertTrue(detector.frequency(7) >= detector.frequency(100));
+        Assert.assertEquals(0, detector.frequency(null));
+
+        // apply经过getUnchecked记录，getIfPresent只记录命中的key
+        long frequency = detector.frequency(7);
+        loadingCache.apply(7);
+        Assert.assertEquals(frequency + 1, detector.frequency(7));
+        Assert.assertNull(loadingCache.getIfPresent("7"));
+        Assert.assertNull(loadingCache.getIfPresent(999));
+        Assert.assertEquals(0, detector.frequency(999));
+    }
+
+    /**
+     * 抽样记录时频次按抽样比例放大，仍然能找出热点key
+     */
+    @Test
+    public void testHotKeyDetectorSampling() {
+        HotKeyDetector<Integer> detector = new HotKeyDetector<>(4, 256, 8);
+        for (int i = 0; i < 8000; i++) {
+            detector.record(7);
+            detector.record(i % 500 + 100);
+        }
+        Assert.assertEquals(Integer.valueOf(7), detector.topKeys().get(0).getKey());
+        long frequency = detector.frequency(7);
+        Assert.assertTrue("frequency " + frequency, frequency > 4000 && frequency < 16000);
+    }
+
+    /**
+     * 全量快照缓存在加载失败或者返回空数据时保留上一份快照
+     */
+    @Test
+    public void testSnapshotKeepsPreviousOnFailure() {
+        final AtomicInteger calls = new AtomicInteger();
+        SnapshotCache<String, Integer> cache = LocalCacheUtil.createSnapshot(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 2) {
+                return Collections.emptyMap();
+            }
+            if (call == 3) {
+                throw new IllegalStateException("db down");
+            }
+            return Collections.singletonMap("k", call);
+        }, 3600);
+        try {
+            Assert.assertEquals(Integer.valueOf(1), cache.get("k"));
+            Assert.assertFalse(cache.refresh());
+            Assert.assertFalse(cache.refresh());
+            Assert.assertEquals(Integer.valueOf(1), cache.get("k"));
+            Assert.assertEquals(1, cache.getFailureCount());
+            Assert.assertTrue(cache.refresh());
+            Assert.assertEquals(Integer.valueOf(4), cache.get("k"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * 刷新线程池拒绝任务时记为一次失败，后续的定时刷新不受影响
+     */
+    @Test
+    public void testSnapshotSurvivesRejectedExecution() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger executions = new AtomicInteger();
+        Executor rejectFirst = (command) -> {
+            if (executions.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("pool is full");
+            }
+            command.run();
+        };
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        SnapshotCache<String, Integer> cache = new SnapshotCache<>(() -> Collections.singletonMap("k", calls.incrementAndGet()));
+        try {
+            cache.loadInitial();
+            cache.schedule(scheduler, rejectFirst, 20, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (calls.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(calls.get() >= 3);
+            Assert.assertEquals(1, cache.getFailureCount());
+            Assert.assertTrue(cache.getLastFailure() instanceof RejectedExecutionException);
+        } finally {
+            cache.close();
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 首次加载失败时异常直接抛给调用方，而不是返回一个空缓存
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotInitialLoadFailure() {
+        LocalCacheUtil.createSnapshot(() -> {
+            throw new IllegalStateException("db down");
+        }, 3600);
+    }
+
+    /**
+     * 异步缓存未命中时不阻塞调用线程，同一个key的并发请求共用一个future，加载返回null时下次访问会重新加载
+     */
+    @Test
+    public void testAsyncCache() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        AsyncLocalCache<Integer, Integer> cache = LocalCacheUtil.createAsync((key) -> {
+            calls.incrementAndGet();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key < 0 ? null : key * 2;
+        }, 100, 10, 10);
+        CompletableFuture<Integer> first = cache.get(1);
+        CompletableFuture<Integer> second = cache.get(1);
+        Assert.assertSame(first, second);
+        Assert.assertFalse(first.isDone());
+        latch.countDown();
+        Assert.assertEquals(Integer.valueOf(2), first.get());
+        Assert.assertEquals(1, calls.get());
+
+        CompletableFuture<Integer> failed = cache.get(-1);
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof CacheLoader.InvalidCacheLoadException);
+        }
+        Assert.assertNotSame(failed, cache.get(-1));
+    }
+
+    /**
+     * 加载函数抛出的异常原样通过future返回，已失败的future不会被getIfPresent返回
+     */
+    @Test
+    public void testAsyncCacheLoadException() throws Exception {
+        AsyncLocalCache<Integer, Integer> cache = LocalCacheUtil.createAsync((key) -> {
+            throw new IllegalStateException("db down");
+        }, 100, 10, 10, MoreExecutors.directExecutor());
+        CompletableFuture<Integer> failed = cache.get(1);
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertNull(cache.getIfPresent(1));
+    }
+
+    /**
+     * 值不变的key刷新间隔逐渐翻倍到上限，值变化后恢复为最短间隔，未到刷新时间的刷新被省掉
+     */
+    @Test
+    public void testAdaptiveRefreshPolicy() {
+        final long[] now = new long[1];
+        AdaptiveRefreshPolicy<String> policy = new AdaptiveRefreshPolicy<>(10, 40, null, new Ticker() {
+            @Override
+            public long read() {
+                return now[0];
+            }
+        });
+        policy.onLoaded("k");
+        now[0] += TimeUnit.SECONDS.toNanos(10);
+        Assert.assertTrue(policy.shouldRefresh("k"));
+        policy.onRefreshed("k", "v", "v");
+        Assert.assertEquals(20, policy.getRefreshIntervalSec("k"));
+
+        now[0] += TimeUnit.SECONDS.toNanos(10);
+        Assert.assertFalse(policy.shouldRefresh("k"));
+        now[0] += TimeUnit.SECONDS.toNanos(10);
+        Assert.assertTrue(policy.shouldRefresh("k"));
+        policy.onRefreshed("k", "v", "v");
+        Assert.assertEquals(40, policy.getRefreshIntervalSec("k"));
+        policy.onRefreshed("k", "v", "v");
+        Assert.assertEquals(40, policy.getRefreshIntervalSec("k"));
+        policy.onRefreshed("k", "v", null);
+        Assert.assertEquals(40, policy.getRefreshIntervalSec("k"));
+
+        policy.onRefreshed("k", "v", "v2");
+        Assert.assertEquals(10, policy.getRefreshIntervalSec("k"));
+        Assert.assertEquals(1, policy.getSkippedCount());
+        Assert.assertEquals(5, policy.getRefreshCount());
+        Assert.assertEquals(1, policy.getChangedCount());
+        Assert.assertEquals(3, policy.getUnchangedCount());
+    }
+
+    /**
+     * 缓存按最短间隔触发刷新，值不变的key未到自己的刷新时间时不回源
+     */
+    @Test
+    public void testCreateAdaptive() {
+        final long[] now = new long[1];
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now[0];
+            }
+        };
+        final AtomicInteger backendCalls = new AtomicInteger();
+        AdaptiveRefreshPolicy<Integer> policy = new AdaptiveRefreshPolicy<>(10, 40, null, ticker);
+        LoadingCache<Integer, Integer> loadingCache = LocalCacheUtil.createAdaptive((key) -> {
+            backendCalls.incrementAndGet();
+            return key + 1;
+        }, 100, 3600, policy, MoreExecutors.directExecutor(), ticker);
+
+        Assert.assertEquals(Integer.valueOf(2), loadingCache.getUnchecked(1));
+        Assert.assertEquals(1, backendCalls.get());
+        // Guava在写入后超过10秒才触发刷新，每次多走1纳秒，共约120秒：第一次刷新后间隔变为20秒，第二次后变为40秒并保持
+        for (int i = 0; i < 12; i++) {
+            now[0] += TimeUnit.SECONDS.toNanos(10) + 1;
+            Assert.assertEquals(Integer.valueOf(2), loadingCache.getUnchecked(1));
+        }
+        // 刷新发生在第10、30、70、110秒
+        Assert.assertEquals(5, backendCalls.get());
+        Assert.assertEquals(4, policy.getRefreshCount());
+        Assert.assertEquals(8, policy.getSkippedCount());
+        Assert.assertEquals(40, policy.getRefreshIntervalSec(1));
+
+        loadingCache.invalidate(1);
+        Assert.assertEquals(10, policy.getRefreshIntervalSec(1));
+    }
+
+    /**
+     * 通过put写入的key没有经过load，同样会按刷新结果调整间隔
+     */
+    @Test
+    public void testAdaptivePutKey() {
+        final long[] now = new long[1];
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now[0];
+            }
+        };
+        AdaptiveRefreshPolicy<Integer> policy = new AdaptiveRefreshPolicy<>(10, 40, null, ticker);
+        LoadingCache<Integer, Integer> loadingCache = LocalCacheUtil.createAdaptive((key) -> key + 1, 100, 3600, policy,
+                MoreExecutors.directExecutor(), ticker);
+        loadingCache.put(1, 2);
+        now[0] += TimeUnit.SECONDS.toNanos(10) + 1;
+        loadingCache.getUnchecked(1);
+        Assert.assertEquals(20, policy.getRefreshIntervalSec(1));
+        now[0] += TimeUnit.SECONDS.toNanos(10) + 1;
+        loadingCache.getUnchecked(1);
+        Assert.assertEquals(1, policy.getSkippedCount());
+    }
+
+    /**
+     * 加载返回null的key不会写入缓存，policy中也不保留记录；刷新期间被移除的key刷新结束后不再重新建立记录
+     */
+    @Test
+    public void testAdaptiveDoesNotLeakState() {
+        AdaptiveRefreshPolicy<Integer> policy = new AdaptiveRefreshPolicy<>(10, 40);
+        LoadingCache<Integer, Integer> loadingCache = LocalCacheUtil.createAdaptive((key) -> null, 100, 3600, policy,
+                MoreExecutors.directExecutor());
+        for (int i = 0; i < 100; i++) {
+            try {
+                loadingCache.getUnchecked(i);
+                Assert.fail();
+            } catch (CacheLoader.InvalidCacheLoadException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(0, loadingCache.size());
+        Assert.assertEquals(0, policy.getTrackedKeyCount());
+
+        policy.onLoaded(1);
+        policy.onRemoved(1);
+        policy.onRefreshed(1, 1, 1);
+        Assert.assertEquals(0, policy.getTrackedKeyCount());
+        Assert.assertEquals(1, policy.getUnchangedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdaptiveRejectsExpireShorterThanMaxRefresh() {
+        LocalCacheUtil.createAdaptive((Integer key) -> key, 100, 30, new AdaptiveRefreshPolicy<Integer>(10, 60));
+    }
 }
@@ -0,0 +1,100 @@
+package com.yesheng.util.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @Description
+ * @Date 2026年10月18日
+ */
+public class JsonLinesReaderTest {
+
+    public static class Item {
+        public int id;
+    }
+
+    /**
+     * 小的chunkSize使文件被切成很多块，保序模式下结果与文件顺序一致，解析失败的行带上字节位置，并按文件顺序与结果穿插回调；
+     * 一行中json之后还有内容时视为解析失败
+     */
+    @Test
+    public void testOrderedWithMalformedLine() throws Exception {
+        StringBuilder content = new StringBuilder();
+        List<Long> expectedOffsets = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            content.append("{\"id\":").append(i).append("}\r\n");
+            if (i == 500) {
+                content.append("\n");
+                expectedOffsets.add((long) content.length());
+                content.append("{\"id\":1}{\"id\":2}\n");
+                expectedOffsets.add((long) content.length());
+                content.append("{\"id\":3} garbage\n");
+            }
+        }
+        expectedOffsets.add((long) content.length());
+        content.append("{oops\n");
+        File file = writeFile(content.toString());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Integer> ids = new ArrayList<>();
+            final List<Long> badOffsets = new ArrayList<>();
+            final List<Integer> deliveredBefore = new ArrayList<>();
+            JsonLinesReader.Summary summary = new JsonLinesReader<Item>(new ObjectMapper().readerFor(Item.class))
+                    .executor(executor)
+                    .chunkSize(100)
+                    .maxInFlightChunks(3)
+                    .onMalformedLine((offset, line, e) -> {
+                        badOffsets.add(offset);
+                        deliveredBefore.add(ids.size());
+                    })
+                    .read(file.toPath(), item -> ids.add(item.id));
+            Assert.assertEquals(1000, ids.size());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(Integer.valueOf(i), ids.get(i));
+            }
+            Assert.assertEquals(expectedOffsets, badOffsets);
+            Assert.assertEquals(Arrays.asList(501, 501, 1000), deliveredBefore);
+            Assert.assertEquals(3, summary.getMalformedLines());
+            Assert.assertTrue(summary.getChunks() > 10);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        StringBuilder content = new StringBuilder();
+        long sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            content.append("{\"id\":").append(i).append("}\n");
+            sum += i;
+        }
+        File file = writeFile(content.toString());
+        final long[] total = new long[1];
+        JsonLinesReader.Summary summary = new JsonLinesReader<Item>(new ObjectMapper().readerFor(Item.class))
+                .chunkSize(64)
+                .ordered(false)
+                .read(file.toPath(), item -> total[0] += item.id);
+        Assert.assertEquals(sum, total[0]);
+        Assert.assertEquals(1000, summary.getRecords());
+        Assert.assertEquals(file.length(), summary.getBytes());
+    }
+
+    private static File writeFile(String content) throws Exception {
+        File file = File.createTempFile("lines", ".jsonl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package com.yesheng.util.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Description
+ * @Date 2026年10月18日
+ */
+public class StringDedupModuleTest {
+
+    public static class Order {
+        public String status;
+        public String country;
+    }
+
+    public static class Tagged {
+        @JsonDeserialize(using = StringDedupModule.DedupStringDeserializer.class)
+        public String tag;
+        public String note;
+    }
+
+    /**
+     * 注册模块后，相同的字符串值是同一个实例，包括Map的value
+     */
+    @Test
+    public void testModule() throws Exception {
+        StringPool pool = new StringPool(1024, 64);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new StringDedupModule(pool));
+        String json = "[{\"status\":\"PAID\",\"country\":\"CN\"},{\"status\":\"PAID\",\"country\":\"CN\"}]";
+        List<Order> orders = mapper.readValue(json, new TypeReference<List<Order>>() {
+        });
+        Assert.assertSame(orders.get(0).status, orders.get(1).status);
+        Assert.assertSame(orders.get(0).country, orders.get(1).country);
+
+        Map<String, String> first = mapper.readValue("{\"region\":\"east\"}", new TypeReference<Map<String, String>>() {
+        });
+        Map<String, String> second = mapper.readValue("{\"region\":\"east\"}".getBytes(), new TypeReference<Map<String, String>>() {
+        });
+        Assert.assertSame(first.get("region"), second.get("region"));
+        Assert.assertTrue(pool.getHitRate() > 0);
+
+        ObjectMapper plain = new ObjectMapper();
+        Map<String, String> plainFirst = plain.readValue("{\"region\":\"east\"}", new TypeReference<Map<String, String>>() {
+        });
+        Map<String, String> plainSecond = plain.readValue("{\"region\":\"east\"}", new TypeReference<Map<String, String>>() {
+        });
+        Assert.assertNotSame(plainFirst.get("region"), plainSecond.get("region"));
+    }
+
+    /**
+     * 不注册模块，只对注解的字段去重
+     */
+    @Test
+    public void testPerField() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = "[{\"tag\":\"hot\",\"note\":\"same\"},{\"tag\":\"hot\",\"note\":\"same\"}]";
+        List<Tagged> list = mapper.readValue(json, new TypeReference<List<Tagged>>() {
+        });
+        Assert.assertSame(list.get(0).tag, list.get(1).tag);
+        Assert.assertNotSame(list.get(0).note, list.get(1).note);
+    }
+
+    @Test
+    public void testPoolSkipsLongStrings() {
+        StringPool pool = new StringPool(16, 4);
+        pool.intern("abcdef");
+        Assert.assertEquals(0, pool.getRequestCount());
+        String value = pool.intern(new String("ab"));
+        Assert.assertSame(value, pool.intern(new String("ab")));
+        Assert.assertEquals(0.5, pool.getHitRate(), 1e-9);
+    }
+}